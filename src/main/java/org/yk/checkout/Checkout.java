@@ -2,12 +2,14 @@ package org.yk.checkout;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yk.NextailException;
 import org.yk.cart.CartItem;
 import org.yk.price.PricingRule;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -17,14 +19,43 @@ import java.util.stream.Collectors;
 public class Checkout {
     private static final Logger LOG = LoggerFactory.getLogger(Checkout.class);
     private final List<CartItem> cartItems;
-    private final List<PricingRule> pricingRules;
+    // Pricing rules each cart item was scanned under, so a void replays it exactly as it was priced
+    private final List<List<PricingRule>> cartItemPricingRules;
+    private final Supplier<List<PricingRule>> pricingRules;
 
     // FIXME: Likely to be redesigned in order to not have to pass pricing rules at this stage
+    /**
+     * Creates a checkout evaluating a fixed list of pricing rules.
+     * Time-windowed rules are rejected, since nothing here would activate or retire them;
+     * use {@link #Checkout(Supplier)} with a {@link org.yk.price.PricingRuleScheduler} instead
+     *
+     * @param pricingRules The pricing rules to be evaluated
+     */
     public Checkout(List<PricingRule> pricingRules) {
+        this(fixedPricingRules(pricingRules));
+    }
+
+    /**
+     * Creates a checkout reading the pricing rules from the given source on every evaluation,
+     * e.g. a {@link org.yk.price.PricingRuleScheduler} publishing the currently active rules.
+     * Every cart item is priced with the rules published when it was scanned, also when replayed after a void,
+     * so discounts already applied are kept when a rule is retired mid-checkout
+     *
+     * @param pricingRules Source of the pricing rules to be evaluated
+     */
+    public Checkout(Supplier<List<PricingRule>> pricingRules) {
         this.cartItems = new ArrayList<>();
+        this.cartItemPricingRules = new ArrayList<>();
         this.pricingRules = pricingRules;
     }
 
+    private static Supplier<List<PricingRule>> fixedPricingRules(List<PricingRule> pricingRules) {
+        if (pricingRules.stream().anyMatch(PricingRule::hasEffectiveWindow)) {
+            throw new NextailException("Time-windowed pricing rules must be published through a PricingRuleScheduler");
+        }
+        return () -> pricingRules;
+    }
+
     /**
      * Scans a new cart item and adds it to the checkout process,
      * then evaluates and applies pricing rules
@@ -33,8 +64,102 @@ public class Checkout {
      */
     public synchronized void scan(CartItem cartItem) {
         LOG.info("Scanning new cart item [" + cartItem.getCode() + "]");
+        List<PricingRule> activePricingRules = pricingRules.get();
         cartItems.add(cartItem);
-        evaluateAndApplyPricingRules();
+        cartItemPricingRules.add(activePricingRules);
+        evaluateAndApplyPricingRules(activePricingRules);
+    }
+
+    /**
+     * Scans a batch of cart items under a single lock acquisition.
+     * Pricing rules are still evaluated after every item, so the outcome matches
+     * scanning the same items one by one. When evaluating an item fails, that item
+     * is rolled back and the batch stops there, restoring the cart and its discounts as they were before it
+     *
+     * @param batch The cart items to be added into Checkout, in scan order
+     * @return The number of cart items scanned, which is lower than the batch size when the next one failed
+     */
+    public synchronized int scan(List<CartItem> batch) {
+        LOG.info("Scanning batch of " + batch.size() + " cart item/s");
+        for (int i = 0; i < batch.size(); i++) {
+            CartItem cartItem = batch.get(i);
+            List<PricingRule> activePricingRules = pricingRules.get();
+            List<Double> discounts = getCartItemDiscounts();
+            cartItems.add(cartItem);
+            cartItemPricingRules.add(activePricingRules);
+            try {
+                evaluateAndApplyPricingRules(activePricingRules);
+            } catch (RuntimeException e) {
+                LOG.warn("Pricing failure while scanning cart item [" + cartItem.getCode() + "], rolling it back: " + e.getMessage());
+                cartItems.remove(cartItems.size() - 1);
+                cartItemPricingRules.remove(cartItemPricingRules.size() - 1);
+                cartItem.setDiscount(0.00);
+                restoreCartItemDiscounts(discounts);
+                return i;
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * Voids the last scanned cart item with the given code.
+     * Since pricing rules are applied incrementally on every scan, the remaining
+     * cart items are replayed from scratch in their original order.
+     * When the replay fails, the cart is left exactly as it was before the void
+     *
+     * @param cartItemCode The code of the cart item to be removed
+     * @return true when a matching cart item was found and removed
+     * @throws NextailException when pricing rules fail to evaluate while replaying the remaining cart items
+     */
+    public synchronized boolean voidItem(String cartItemCode) {
+        for (int i = cartItems.size() - 1; i >= 0; i--) {
+            if (cartItems.get(i).getCode().equals(cartItemCode)) {
+                LOG.info("Voiding cart item [" + cartItemCode + "]");
+                List<CartItem> previousCartItems = new ArrayList<>(cartItems);
+                List<List<PricingRule>> previousCartItemPricingRules = new ArrayList<>(cartItemPricingRules);
+                List<Double> previousDiscounts = getCartItemDiscounts();
+                cartItems.remove(i);
+                cartItemPricingRules.remove(i);
+                try {
+                    repriceCartItems();
+                } catch (RuntimeException e) {
+                    cartItems.clear();
+                    cartItems.addAll(previousCartItems);
+                    cartItemPricingRules.clear();
+                    cartItemPricingRules.addAll(previousCartItemPricingRules);
+                    restoreCartItemDiscounts(previousDiscounts);
+                    throw new NextailException("Pricing failure while voiding cart item [" + cartItemCode
+                            + "], cart left unchanged", e);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Double> getCartItemDiscounts() {
+        return cartItems.stream().map(CartItem::getDiscount).collect(Collectors.toList());
+    }
+
+    private void restoreCartItemDiscounts(List<Double> discounts) {
+        for (int i = 0; i < cartItems.size(); i++) {
+            cartItems.get(i).setDiscount(discounts.get(i));
+        }
+    }
+
+    /**
+     * Clears every discount and replays the current cart items in their original order,
+     * each one with the pricing rules it was scanned under
+     */
+    private void repriceCartItems() {
+        List<CartItem> scannedCartItems = new ArrayList<>(cartItems);
+        cartItems.clear();
+        for (int i = 0; i < scannedCartItems.size(); i++) {
+            CartItem cartItem = scannedCartItems.get(i);
+            cartItem.setDiscount(0.00);
+            cartItems.add(cartItem);
+            evaluateAndApplyPricingRules(cartItemPricingRules.get(i));
+        }
     }
 
     public List<CartItem> getCartItems() {
@@ -50,9 +175,10 @@ public class Checkout {
      * NOTE: currently there's a limitation for composed conditions,
      * which are always being evaluated using AND operator
      *
+     * @param activePricingRules The pricing rules to be evaluated
      */
-    private void evaluateAndApplyPricingRules() {
-        pricingRules.forEach(pr -> {
+    private void evaluateAndApplyPricingRules(List<PricingRule> activePricingRules) {
+        activePricingRules.forEach(pr -> {
             List<CartItem> filteredCartItems = cartItems;
             if (pr.getConditions() == null || (pr.getConditions() == null && pr.getActions() == null)) {
                 return;
@@ -5,24 +5,42 @@ import org.slf4j.LoggerFactory;
 import org.yk.NextailException;
 import org.yk.cart.CartItem;
 
+import java.time.Instant;
 import java.util.List;
 
 /**
- * Class responsible to define conditions and actions for a given pricing rule.
+ * Class responsible to define conditions and actions for a given pricing rule,
+ * optionally restricted to an effective time window.
  */
 public class PricingRule {
     private static final Logger LOG = LoggerFactory.getLogger(PricingRule.class);
     private final List<PriceRuleCondition<?>> conditions;
     private final List<PriceRuleAction<?>> actions;
+    private final Instant effectiveFrom;
+    private final Instant effectiveUntil;
 
     public PricingRule() {
-        this.conditions = null;
-        this.actions = null;
+        this(null, null);
     }
 
     public PricingRule(List<PriceRuleCondition<?>> conditions, List<PriceRuleAction<?>> actions) {
+        this(conditions, actions, null, null);
+    }
+
+    /**
+     * @param effectiveFrom  Instant the rule becomes active (inclusive), or null for no start boundary
+     * @param effectiveUntil Instant the rule is retired (exclusive), or null when it never expires
+     */
+    public PricingRule(List<PriceRuleCondition<?>> conditions, List<PriceRuleAction<?>> actions,
+                       Instant effectiveFrom, Instant effectiveUntil) {
+        if (effectiveFrom != null && effectiveUntil != null && !effectiveFrom.isBefore(effectiveUntil)) {
+            throw new NextailException("Pricing rule effective from " + effectiveFrom
+                    + " must be before effective until " + effectiveUntil);
+        }
         this.conditions = conditions;
         this.actions = actions;
+        this.effectiveFrom = effectiveFrom;
+        this.effectiveUntil = effectiveUntil;
     }
 
     public List<PriceRuleCondition<?>> getConditions() {
@@ -33,6 +51,40 @@ public class PricingRule {
         return actions;
     }
 
+    public Instant getEffectiveFrom() {
+        return effectiveFrom;
+    }
+
+    public Instant getEffectiveUntil() {
+        return effectiveUntil;
+    }
+
+    /**
+     * @return true when the rule is restricted to an effective window, so it needs a {@link PricingRuleScheduler}
+     */
+    public boolean hasEffectiveWindow() {
+        return effectiveFrom != null || effectiveUntil != null;
+    }
+
+    /**
+     * Checks the rule effective window against the given instant.
+     * Not meant for the scan path: {@link PricingRuleScheduler} evaluates it only at window boundaries
+     *
+     * @param instant The instant to be checked
+     * @return true when the rule is active at the given instant
+     */
+    public boolean isEffectiveAt(Instant instant) {
+        return (effectiveFrom == null || !instant.isBefore(effectiveFrom))
+                && (effectiveUntil == null || instant.isBefore(effectiveUntil));
+    }
+
+    /**
+     * @return true when the rule is retired at the given instant and will never become active again
+     */
+    public boolean isExpiredAt(Instant instant) {
+        return effectiveUntil != null && !instant.isBefore(effectiveUntil);
+    }
+
 
     /**
      * Defines a rule condition by constructing through a builder the right and left value and the conditional operator
@@ -0,0 +1,188 @@
+package org.yk.price;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yk.NextailException;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the set of currently active pricing rules, activating and retiring time-windowed rules
+ * at their effective boundaries.
+ * <p>
+ * Boundaries are kept in a hashed timer wheel of {@code wheelSize} slots, each one covering {@code tickDuration}.
+ * Whenever a boundary fires, a new immutable rule list is built and published atomically, so readers
+ * such as {@link org.yk.checkout.Checkout} only pay a volatile read per evaluation and never read the clock.
+ * Boundaries fire on the first tick at or after their instant. The ticker started by {@link #start()} runs
+ * on tick boundaries, so activation lags by up to one tick plus the ticker's scheduling delay.
+ */
+public class PricingRuleScheduler implements Supplier<List<PricingRule>>, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(PricingRuleScheduler.class);
+    public static final Duration DEFAULT_TICK_DURATION = Duration.ofSeconds(1);
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final Clock clock;
+    private final long startMillis;
+    private final long tickMillis;
+    private final List<List<Boundary>> wheel;
+    private final List<PricingRule> pricingRules = new ArrayList<>();
+    private volatile List<PricingRule> activePricingRules = List.of();
+    private long currentTick;
+    private ScheduledExecutorService ticker;
+
+    public PricingRuleScheduler(Clock clock, List<PricingRule> pricingRules) {
+        this(clock, DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE, pricingRules);
+    }
+
+    /**
+     * @param clock        Clock used to compute the current tick and the active rule set
+     * @param tickDuration Resolution of the timer wheel
+     * @param wheelSize    Number of timer wheel slots
+     * @param pricingRules Initial pricing rules, with or without effective windows
+     */
+    public PricingRuleScheduler(Clock clock, Duration tickDuration, int wheelSize, List<PricingRule> pricingRules) {
+        if (tickDuration.toMillis() <= 0) {
+            throw new NextailException("Pricing rule scheduler tick duration must be at least 1ms");
+        }
+        if (wheelSize <= 0) {
+            throw new NextailException("Pricing rule scheduler wheel size must be positive");
+        }
+        this.clock = clock;
+        this.startMillis = clock.millis();
+        this.tickMillis = tickDuration.toMillis();
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        pricingRules.forEach(this::scheduleBoundaries);
+        this.pricingRules.addAll(pricingRules);
+        publish();
+    }
+
+    /**
+     * @return The pricing rules active as of the last processed tick
+     */
+    @Override
+    public List<PricingRule> get() {
+        return activePricingRules;
+    }
+
+    /**
+     * Adds a pricing rule, publishing it straight away when already inside its effective window
+     *
+     * @param pricingRule The pricing rule to be scheduled
+     */
+    public synchronized void addPricingRule(PricingRule pricingRule) {
+        scheduleBoundaries(pricingRule);
+        pricingRules.add(pricingRule);
+        publish();
+    }
+
+    /**
+     * Processes every tick elapsed since the last call, publishing a new active rule set
+     * when at least one boundary fired. Called by the ticker thread once started,
+     * or directly when driving the scheduler from a test clock
+     */
+    public synchronized void advance() {
+        long targetTick = tickOf(clock.millis());
+        if (targetTick <= currentTick) {
+            return;
+        }
+        // After a long pause one sweep of the whole wheel covers every pending boundary
+        long ticksToProcess = Math.min(targetTick - currentTick, wheel.size());
+        boolean fired = false;
+        for (long tick = targetTick - ticksToProcess + 1; tick <= targetTick; tick++) {
+            Iterator<Boundary> slot = wheel.get(slotOf(tick)).iterator();
+            while (slot.hasNext()) {
+                if (slot.next().deadlineTick() <= targetTick) {
+                    slot.remove();
+                    fired = true;
+                }
+            }
+        }
+        currentTick = targetTick;
+        if (fired) {
+            publish();
+        }
+    }
+
+    /**
+     * Starts a daemon thread advancing the scheduler once per tick, aligned with the tick boundaries
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            throw new NextailException("Pricing rule scheduler already started");
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pricing-rule-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long initialDelay = tickMillis - Math.floorMod(clock.millis() - startMillis, tickMillis);
+        ticker.scheduleAtFixedRate(() -> {
+            // An exception would cancel every later run and freeze the published rule set
+            try {
+                advance();
+            } catch (RuntimeException e) {
+                LOG.error("Pricing rule scheduler tick failure", e);
+            }
+        }, initialDelay, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    private void scheduleBoundaries(PricingRule pricingRule) {
+        scheduleBoundary(pricingRule.getEffectiveFrom());
+        scheduleBoundary(pricingRule.getEffectiveUntil());
+    }
+
+    private void scheduleBoundary(Instant instant) {
+        if (instant == null) {
+            return;
+        }
+        // Round up so the boundary never fires before its instant
+        long deadlineTick = tickOf(instant.toEpochMilli() + tickMillis - 1);
+        if (deadlineTick <= currentTick) {
+            // Already passed, the next publish accounts for it
+            return;
+        }
+        wheel.get(slotOf(deadlineTick)).add(new Boundary(deadlineTick));
+    }
+
+    /**
+     * Rebuilds the active rule set from the current instant, dropping expired rules for good
+     */
+    private void publish() {
+        Instant now = clock.instant();
+        pricingRules.removeIf(pr -> pr.isExpiredAt(now));
+        activePricingRules = pricingRules.stream().filter(pr -> pr.isEffectiveAt(now)).toList();
+        LOG.info("Published " + activePricingRules.size() + " active pricing rule/s out of " + pricingRules.size());
+    }
+
+    private long tickOf(long epochMillis) {
+        return Math.floorDiv(epochMillis - startMillis, tickMillis);
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) wheel.size());
+    }
+
+    private record Boundary(long deadlineTick) {
+    }
+}
@@ -0,0 +1,238 @@
+package org.yk.server;
+
+import org.yk.NextailException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loopback load generator for {@link PricingServer}.
+ * <p>
+ * Every connection runs its sessions one after the other: a session is opened, then all of its scans,
+ * a running total and the final close are pipelined, keeping at most {@code pipelineDepth} requests in flight.
+ * A session's requests can only be sent once its OPEN response carries the session id back, so OPEN requests
+ * are sent ahead for as many upcoming sessions as it takes to fill the window. Without that look-ahead the
+ * pipeline would drain at every session boundary, capping the window at one session length.
+ * Once finished, throughput and latency percentiles across all requests are reported.
+ * <p>
+ * Usage: {@code PricingLoadGenerator [port] [connections] [sessionsPerConnection] [scansPerSession] [pipelineDepth]}.
+ * A port of 0 (the default) starts an embedded server with the sample data.
+ */
+public class PricingLoadGenerator {
+    private static final String[] CART_ITEM_CODES = {"TSHIRT", "PANTS", "VOUCHER"};
+    // Session ids handed out by the server start at 1
+    private static final long NO_SESSION = 0L;
+
+    private final InetSocketAddress address;
+    private final int connections;
+    private final int sessionsPerConnection;
+    private final int scansPerSession;
+    private final int pipelineDepth;
+    private final AtomicLong errors = new AtomicLong();
+
+    public PricingLoadGenerator(InetSocketAddress address, int connections, int sessionsPerConnection,
+                                int scansPerSession, int pipelineDepth) {
+        this.address = address;
+        this.connections = connections;
+        this.sessionsPerConnection = sessionsPerConnection;
+        this.scansPerSession = scansPerSession;
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * Runs the configured load and prints a throughput and latency report to stdout
+     */
+    public void run() throws InterruptedException {
+        int requestsPerConnection = sessionsPerConnection * (scansPerSession + 3);
+        long[][] latencies = new long[connections][];
+        List<Thread> workers = new ArrayList<>(connections);
+        long startNanos = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            final int connectionIndex = c;
+            Thread worker = new Thread(() -> latencies[connectionIndex] = runConnection(requestsPerConnection),
+                    "pricing-load-" + c);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).filter(l -> l >= 0).sorted().toArray();
+        System.out.printf(Locale.ROOT, "requests=%d errors=%d elapsed=%.3fs throughput=%.0f req/s%n",
+                all.length, errors.get(), elapsedNanos / 1e9, all.length / (elapsedNanos / 1e9));
+        System.out.printf(Locale.ROOT, "latency us: p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 0.999),
+                all.length > 0 ? all[all.length - 1] / 1e3 : 0.0);
+    }
+
+    private long[] runConnection(int requestCount) {
+        byte[] sentOps = new byte[requestCount];
+        long[] sentNanos = new long[requestCount];
+        long[] latencyNanos = new long[requestCount];
+        // Requests left unanswered after a connection failure keep a negative latency and are not reported
+        Arrays.fill(latencyNanos, -1);
+        Semaphore window = new Semaphore(pipelineDepth);
+        BlockingQueue<Long> openedSessions = new LinkedBlockingQueue<>();
+        int sessionsAhead = pipelineDepth / (scansPerSession + 3) + 1;
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Thread reader = new Thread(() -> readResponses(channel, requestCount, sentOps, sentNanos, latencyNanos, window, openedSessions),
+                    Thread.currentThread().getName() + "-reader");
+            reader.start();
+
+            ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+            int requestId = 0;
+            int sessionsOpened = 0;
+            for (int s = 0; s < sessionsPerConnection; s++) {
+                while (sessionsOpened < sessionsPerConnection && sessionsOpened <= s + sessionsAhead) {
+                    requestId = send(channel, out, window, sentOps, sentNanos, requestId, PricingProtocol.OP_OPEN, 0, null);
+                    sessionsOpened++;
+                }
+                // OPEN responses come back in order, so the head of the queue belongs to session s
+                Long sessionId = openedSessions.poll();
+                if (sessionId == null) {
+                    flush(channel, out);
+                    sessionId = openedSessions.take();
+                }
+                if (sessionId == NO_SESSION) {
+                    continue;
+                }
+                for (int i = 0; i < scansPerSession; i++) {
+                    requestId = send(channel, out, window, sentOps, sentNanos, requestId, PricingProtocol.OP_SCAN, sessionId,
+                            CART_ITEM_CODES[i % CART_ITEM_CODES.length]);
+                }
+                requestId = send(channel, out, window, sentOps, sentNanos, requestId, PricingProtocol.OP_TOTAL, sessionId, null);
+                requestId = send(channel, out, window, sentOps, sentNanos, requestId, PricingProtocol.OP_CLOSE, sessionId, null);
+            }
+            flush(channel, out);
+            reader.join();
+        } catch (IOException e) {
+            System.err.println("Load generator connection failure: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return latencyNanos;
+    }
+
+    /**
+     * Buffers a request, waiting for a free pipeline slot first.
+     * Buffered requests are only flushed when no slot is immediately available,
+     * so requests are coalesced into as few writes as the window allows
+     */
+    private int send(SocketChannel channel, ByteBuffer out, Semaphore window, byte[] sentOps,
+                     long[] sentNanos, int requestId, byte op, long sessionId, String code) throws IOException, InterruptedException {
+        if (!window.tryAcquire()) {
+            flush(channel, out);
+            window.acquire();
+        }
+        if (out.remaining() < PricingProtocol.MAX_FRAME_SIZE) {
+            flush(channel, out);
+        }
+        sentOps[requestId] = op;
+        sentNanos[requestId] = System.nanoTime();
+        PricingProtocol.writeRequest(out, op, requestId, sessionId, code);
+        return requestId + 1;
+    }
+
+    private void flush(SocketChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    private void readResponses(SocketChannel channel, int requestCount, byte[] sentOps, long[] sentNanos, long[] latencyNanos,
+                               Semaphore window, BlockingQueue<Long> openedSessions) {
+        ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        int received = 0;
+        int expected = requestCount;
+        try {
+            while (received < expected) {
+                if (channel.read(in) < 0) {
+                    throw new NextailException("Pricing server closed the connection");
+                }
+                in.flip();
+                while (in.remaining() >= PricingProtocol.LENGTH_PREFIX_SIZE
+                        && in.remaining() >= PricingProtocol.LENGTH_PREFIX_SIZE + in.getInt(in.position())) {
+                    int frameEnd = in.position() + PricingProtocol.LENGTH_PREFIX_SIZE + in.getInt();
+                    byte status = in.get();
+                    int requestId = in.getInt();
+                    long now = System.nanoTime();
+                    latencyNanos[requestId] = now - sentNanos[requestId];
+                    if (status != PricingProtocol.STATUS_OK) {
+                        errors.incrementAndGet();
+                    }
+                    if (sentOps[requestId] == PricingProtocol.OP_OPEN) {
+                        if (status == PricingProtocol.STATUS_OK) {
+                            openedSessions.put(in.getLong());
+                        } else {
+                            // The writer skips the rest of this session
+                            expected -= scansPerSession + 2;
+                            openedSessions.put(NO_SESSION);
+                        }
+                    }
+                    in.position(frameEnd);
+                    received++;
+                    window.release();
+                }
+                in.compact();
+            }
+        } catch (IOException | NextailException e) {
+            errors.addAndGet(expected - received);
+            // Unblock the writer, which may be waiting for a pipeline slot that will never be released
+            window.release(pipelineDepth);
+            openedSessions.offer(NO_SESSION);
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already failing
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e3;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int sessionsPerConnection = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int scansPerSession = args.length > 3 ? Integer.parseInt(args[3]) : 12;
+        int pipelineDepth = args.length > 4 ? Integer.parseInt(args[4]) : 32;
+
+        PricingServer embeddedServer = null;
+        if (port == 0) {
+            embeddedServer = PricingServer.withSampleData(new InetSocketAddress("127.0.0.1", 0));
+            port = embeddedServer.start();
+        }
+        try {
+            new PricingLoadGenerator(new InetSocketAddress("127.0.0.1", port), connections,
+                    sessionsPerConnection, scansPerSession, pipelineDepth).run();
+        } finally {
+            if (embeddedServer != null) {
+                embeddedServer.close();
+            }
+        }
+    }
+}
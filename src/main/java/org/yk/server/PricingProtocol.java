@@ -0,0 +1,78 @@
+package org.yk.server;
+
+import org.yk.NextailException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary protocol shared by {@link PricingServer} and {@link PricingLoadGenerator}.
+ * <p>
+ * Every frame starts with a 4 byte big-endian length covering the rest of the frame.
+ * <pre>
+ * request  = length:int op:byte requestId:int sessionId:long [code:short-prefixed UTF-8 (SCAN, VOID)]
+ * response = length:int status:byte requestId:int payload
+ * </pre>
+ * Response payloads: OPEN returns the new session id (long), SCAN and VOID return the cart size (int),
+ * TOTAL and CLOSE return the cart total (double), and any ERROR status carries a message string.
+ * Requests may be pipelined; responses are always written back in request order.
+ */
+public final class PricingProtocol {
+    public static final byte OP_OPEN = 1;
+    public static final byte OP_SCAN = 2;
+    public static final byte OP_VOID = 3;
+    public static final byte OP_TOTAL = 4;
+    public static final byte OP_CLOSE = 5;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    public static final int LENGTH_PREFIX_SIZE = Integer.BYTES;
+    public static final int REQUEST_HEADER_SIZE = Byte.BYTES + Integer.BYTES + Long.BYTES;
+    public static final int MAX_FRAME_SIZE = 4096;
+
+    private PricingProtocol() {
+    }
+
+    public static void writeRequest(ByteBuffer buffer, byte op, int requestId, long sessionId, String code) {
+        byte[] codeBytes = code != null ? code.getBytes(StandardCharsets.UTF_8) : null;
+        int length = REQUEST_HEADER_SIZE + (codeBytes != null ? Short.BYTES + codeBytes.length : 0);
+        buffer.putInt(length).put(op).putInt(requestId).putLong(sessionId);
+        if (codeBytes != null) {
+            buffer.putShort((short) codeBytes.length).put(codeBytes);
+        }
+    }
+
+    public static void writeLongResponse(ByteBuffer buffer, int requestId, long value) {
+        buffer.putInt(Byte.BYTES + Integer.BYTES + Long.BYTES).put(STATUS_OK).putInt(requestId).putLong(value);
+    }
+
+    public static void writeIntResponse(ByteBuffer buffer, int requestId, int value) {
+        buffer.putInt(Byte.BYTES + Integer.BYTES + Integer.BYTES).put(STATUS_OK).putInt(requestId).putInt(value);
+    }
+
+    public static void writeDoubleResponse(ByteBuffer buffer, int requestId, double value) {
+        buffer.putInt(Byte.BYTES + Integer.BYTES + Double.BYTES).put(STATUS_OK).putInt(requestId).putDouble(value);
+    }
+
+    public static void writeErrorResponse(ByteBuffer buffer, int requestId, String message) {
+        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(Byte.BYTES + Integer.BYTES + Short.BYTES + messageBytes.length)
+                .put(STATUS_ERROR).putInt(requestId)
+                .putShort((short) messageBytes.length).put(messageBytes);
+    }
+
+    /**
+     * Reads a short-prefixed UTF-8 string, failing when it overruns the buffer.
+     * Callers pass a buffer limited to the current frame
+     */
+    public static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length > buffer.remaining()) {
+            throw new NextailException("Malformed frame: string length " + length + " exceeds frame size");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,435 @@
+package org.yk.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yk.NextailException;
+import org.yk.cart.CartItem;
+import org.yk.checkout.Checkout;
+import org.yk.price.PricingRule;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Standalone pricing node serving server-side {@link Checkout} sessions to thin tills
+ * over the {@link PricingProtocol} binary protocol.
+ * <p>
+ * A single selector thread owns every connection and every session, so checkouts are never
+ * accessed concurrently. Pipelined requests are decoded in bulk on every read, and consecutive
+ * scans for the same session are applied to the checkout as one batch.
+ * Sessions are owned by the connection that opened them: other connections cannot reach them, and they are
+ * discarded along with any open cart when that connection closes. At most {@code maxSessions} sessions may be open
+ * across all connections, any further OPEN being rejected until a session is closed.
+ */
+public class PricingServer implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(PricingServer.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Upper bound of any response frame written by the server (error messages are fixed and short)
+    private static final int MAX_RESPONSE_SIZE = 128;
+    public static final int DEFAULT_MAX_SESSIONS = 10_000;
+
+    private final InetSocketAddress address;
+    private final Map<String, CartItem> catalogue;
+    private final Supplier<List<PricingRule>> pricingRules;
+    private final int maxSessions;
+    private final List<Request> pendingRequests = new ArrayList<>();
+    private long nextSessionId = 1;
+    private int openSessions;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread eventLoop;
+    private volatile boolean running;
+
+    public PricingServer(InetSocketAddress address, Map<String, CartItem> catalogue, Supplier<List<PricingRule>> pricingRules) {
+        this(address, catalogue, pricingRules, DEFAULT_MAX_SESSIONS);
+    }
+
+    /**
+     * @param address      The local address to bind to (port 0 picks an ephemeral port)
+     * @param catalogue    Cart item prototypes by code; every scan prices a fresh copy of the prototype
+     * @param pricingRules Source of the pricing rules shared by every checkout session, e.g. a
+     *                     {@link org.yk.price.PricingRuleScheduler} so time-windowed rules are honoured
+     * @param maxSessions  Maximum number of sessions open at once across all connections
+     */
+    public PricingServer(InetSocketAddress address, Map<String, CartItem> catalogue, Supplier<List<PricingRule>> pricingRules,
+                         int maxSessions) {
+        if (maxSessions <= 0) {
+            throw new NextailException("Pricing server max sessions must be positive");
+        }
+        this.address = address;
+        this.catalogue = catalogue;
+        this.pricingRules = pricingRules;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Binds the server socket and starts the selector thread
+     *
+     * @return The bound local port
+     */
+    public synchronized int start() throws IOException {
+        if (running) {
+            throw new NextailException("Pricing server already started");
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        eventLoop = new Thread(this::runEventLoop, "pricing-server");
+        eventLoop.start();
+        LOG.info("Pricing server listening on " + serverChannel.getLocalAddress());
+        return getPort();
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            eventLoop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        // Sessions went away with their connections
+        openSessions = 0;
+        LOG.info("Pricing server stopped");
+    }
+
+    private void runEventLoop() {
+        while (running) {
+            try {
+                selector.select();
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        try {
+                            service(key);
+                        } catch (RuntimeException e) {
+                            // Never let a single till take the event loop down
+                            LOG.error("Unexpected failure serving till connection", e);
+                            closeConnection(key);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                LOG.error("Pricing server event loop failure", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+        LOG.debug("Accepted till connection from " + channel.getRemoteAddress());
+    }
+
+    /**
+     * Reads whatever is available, then alternates decoding, dispatching and flushing
+     * until no more progress can be made without waiting on the socket
+     */
+    private void service(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable() && channel.read(connection.in) < 0) {
+                closeConnection(key);
+                return;
+            }
+            boolean progress = true;
+            while (progress) {
+                int decoded = decodeRequests(connection);
+                dispatch(connection);
+                connection.out.flip();
+                int written = channel.write(connection.out);
+                connection.out.compact();
+                progress = decoded > 0 || (written > 0 && connection.hasBacklog());
+            }
+            int interestOps = 0;
+            if (connection.in.hasRemaining()) {
+                interestOps |= SelectionKey.OP_READ;
+            }
+            if (connection.out.position() > 0) {
+                interestOps |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(interestOps);
+        } catch (IOException | NextailException e) {
+            LOG.warn("Dropping till connection: " + e.getMessage());
+            closeConnection(key);
+        }
+    }
+
+    /**
+     * Decodes complete request frames from the input buffer, but only as many as
+     * the output buffer can answer, so a slow reader applies backpressure to its own pipeline
+     *
+     * @return The number of decoded requests
+     */
+    private int decodeRequests(Connection connection) {
+        ByteBuffer in = connection.in;
+        int capacity = connection.out.remaining() / MAX_RESPONSE_SIZE;
+        in.flip();
+        try {
+            while (pendingRequests.size() < capacity && in.remaining() >= PricingProtocol.LENGTH_PREFIX_SIZE) {
+                int length = in.getInt(in.position());
+                if (length < PricingProtocol.REQUEST_HEADER_SIZE || length > PricingProtocol.MAX_FRAME_SIZE) {
+                    throw new NextailException("Malformed frame: invalid length " + length);
+                }
+                if (in.remaining() < PricingProtocol.LENGTH_PREFIX_SIZE + length) {
+                    break;
+                }
+                // Decode from a view of this frame only, so a bad frame can never read into the next one
+                ByteBuffer frame = in.slice(in.position() + PricingProtocol.LENGTH_PREFIX_SIZE, length);
+                in.position(in.position() + PricingProtocol.LENGTH_PREFIX_SIZE + length);
+                byte op = frame.get();
+                int requestId = frame.getInt();
+                long sessionId = frame.getLong();
+                String code = null;
+                if (op == PricingProtocol.OP_SCAN || op == PricingProtocol.OP_VOID) {
+                    if (length < PricingProtocol.REQUEST_HEADER_SIZE + Short.BYTES) {
+                        throw new NextailException("Malformed frame: missing cart item code");
+                    }
+                    code = PricingProtocol.readString(frame);
+                }
+                pendingRequests.add(new Request(op, requestId, sessionId, code));
+            }
+        } finally {
+            in.compact();
+        }
+        return pendingRequests.size();
+    }
+
+    private void dispatch(Connection connection) {
+        ByteBuffer out = connection.out;
+        int i = 0;
+        while (i < pendingRequests.size()) {
+            Request request = pendingRequests.get(i);
+            if (request.op() == PricingProtocol.OP_SCAN) {
+                int batchEnd = i + 1;
+                while (batchEnd < pendingRequests.size()
+                        && pendingRequests.get(batchEnd).op() == PricingProtocol.OP_SCAN
+                        && pendingRequests.get(batchEnd).sessionId() == request.sessionId()) {
+                    batchEnd++;
+                }
+                scanBatch(connection, pendingRequests.subList(i, batchEnd));
+                i = batchEnd;
+            } else {
+                try {
+                    handle(connection, request);
+                } catch (RuntimeException e) {
+                    LOG.warn("Pricing failure while handling request: " + e.getMessage());
+                    PricingProtocol.writeErrorResponse(out, request.requestId(), "Pricing failure");
+                }
+                i++;
+            }
+        }
+        pendingRequests.clear();
+    }
+
+    private void scanBatch(Connection connection, List<Request> batch) {
+        ByteBuffer out = connection.out;
+        Checkout checkout = connection.sessions.get(batch.get(0).sessionId());
+        if (checkout == null) {
+            batch.forEach(r -> PricingProtocol.writeErrorResponse(out, r.requestId(), "Unknown session"));
+            return;
+        }
+        List<CartItem> cartItems = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            CartItem prototype = catalogue.get(request.code());
+            if (prototype != null) {
+                cartItems.add(new CartItem(prototype.getCode(), prototype.getName(), prototype.getPrice(), prototype.getCurrency()));
+            }
+        }
+        // A failed item is left out of the cart, then the rest of the batch carries on as if scanned one by one
+        boolean[] failed = new boolean[cartItems.size()];
+        int cartSize = checkout.getCartItems().size();
+        int scanned = 0;
+        while (scanned < cartItems.size()) {
+            scanned += checkout.scan(cartItems.subList(scanned, cartItems.size()));
+            if (scanned < cartItems.size()) {
+                failed[scanned++] = true;
+            }
+        }
+        int cartItemIndex = 0;
+        for (Request request : batch) {
+            if (!catalogue.containsKey(request.code())) {
+                PricingProtocol.writeErrorResponse(out, request.requestId(), "Unknown cart item code");
+            } else if (failed[cartItemIndex++]) {
+                PricingProtocol.writeErrorResponse(out, request.requestId(), "Pricing failure");
+            } else {
+                PricingProtocol.writeIntResponse(out, request.requestId(), ++cartSize);
+            }
+        }
+    }
+
+    private void handle(Connection connection, Request request) {
+        ByteBuffer out = connection.out;
+        if (request.op() == PricingProtocol.OP_OPEN) {
+            if (openSessions >= maxSessions) {
+                LOG.warn("Rejecting session: " + openSessions + " session/s already open");
+                PricingProtocol.writeErrorResponse(out, request.requestId(), "Too many sessions");
+                return;
+            }
+            long sessionId = nextSessionId++;
+            connection.sessions.put(sessionId, new Checkout(pricingRules));
+            openSessions++;
+            PricingProtocol.writeLongResponse(out, request.requestId(), sessionId);
+            return;
+        }
+        Checkout checkout = connection.sessions.get(request.sessionId());
+        if (checkout == null) {
+            PricingProtocol.writeErrorResponse(out, request.requestId(), "Unknown session");
+            return;
+        }
+        switch (request.op()) {
+            case PricingProtocol.OP_VOID -> {
+                if (checkout.voidItem(request.code())) {
+                    PricingProtocol.writeIntResponse(out, request.requestId(), checkout.getCartItems().size());
+                } else {
+                    PricingProtocol.writeErrorResponse(out, request.requestId(), "Cart item not found");
+                }
+            }
+            case PricingProtocol.OP_TOTAL ->
+                    PricingProtocol.writeDoubleResponse(out, request.requestId(), checkout.getCartTotal());
+            case PricingProtocol.OP_CLOSE -> {
+                connection.sessions.remove(request.sessionId());
+                openSessions--;
+                PricingProtocol.writeDoubleResponse(out, request.requestId(), checkout.getCartTotal());
+            }
+            default -> PricingProtocol.writeErrorResponse(out, request.requestId(), "Unknown operation");
+        }
+    }
+
+    private void closeConnection(SelectionKey key) {
+        pendingRequests.clear();
+        Connection connection = (Connection) key.attachment();
+        if (!connection.sessions.isEmpty()) {
+            LOG.info("Discarding " + connection.sessions.size() + " session/s left open by closed till connection");
+            openSessions -= connection.sessions.size();
+            connection.sessions.clear();
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            LOG.warn("Error closing till connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Builds a server over the sample catalogue and pricing rules described in the README
+     *
+     * @param address The local address to bind to
+     */
+    public static PricingServer withSampleData(InetSocketAddress address) {
+        Map<String, CartItem> catalogue = new LinkedHashMap<>();
+        catalogue.put("VOUCHER", new CartItem("VOUCHER", "Gift Card", 5.00, "€"));
+        catalogue.put("TSHIRT", new CartItem("TSHIRT", "Summer T-Shirt", 20.00, "€"));
+        catalogue.put("PANTS", new CartItem("PANTS", "Summer Pants", 7.50, "€"));
+
+        // Unit price 19€ for TSHIRT items when cart has >= 3 cart items of that type
+        PricingRule threeOrMoreTshirt = new PricingRule(
+                List.of(
+                        new PricingRule.PriceRuleCondition.Builder<String>()
+                                .addConditionType(PricingRule.PriceRuleCondition.PriceRuleConditionType.CART_ITEM_CODE)
+                                .addConditionValue("TSHIRT")
+                                .build(),
+                        new PricingRule.PriceRuleCondition.Builder<Integer>()
+                                .addConditionOperator(PricingRule.PriceRuleCondition.PriceRuleConditionOperator.GREATER_THAN_EQUALS)
+                                .addConditionType(PricingRule.PriceRuleCondition.PriceRuleConditionType.CART_ITEM_QUANTITY_TOTAL)
+                                .addConditionValue(3)
+                                .build()),
+                List.of(
+                        new PricingRule.PriceRuleAction.Builder<Double>()
+                                .addActionType(PricingRule.PriceRuleAction.PriceRuleActionType.CART_ITEM_FIXED_PRICE)
+                                .addActionValue(19.00)
+                                .build()));
+        // 2-for-1 pricing rule for VOUCHER
+        PricingRule twoForOneVoucher = new PricingRule(
+                List.of(
+                        new PricingRule.PriceRuleCondition.Builder<String>()
+                                .addConditionType(PricingRule.PriceRuleCondition.PriceRuleConditionType.CART_ITEM_CODE)
+                                .addConditionValue("VOUCHER")
+                                .build(),
+                        new PricingRule.PriceRuleCondition.Builder<Integer>()
+                                .addConditionType(PricingRule.PriceRuleCondition.PriceRuleConditionType.CART_ITEM_X_QUANTITY)
+                                .addConditionValue(2)
+                                .build()),
+                List.of(
+                        new PricingRule.PriceRuleAction.Builder<Integer>()
+                                .addActionType(PricingRule.PriceRuleAction.PriceRuleActionType.CART_ITEM_DISCOUNT_PERCENT)
+                                .addActionValue(100)
+                                .build()));
+        List<PricingRule> pricingRules = List.of(threeOrMoreTshirt, twoForOneVoucher);
+        return new PricingServer(address, catalogue, () -> pricingRules);
+    }
+
+    /**
+     * Starts a loopback pricing server with the sample data.
+     * Usage: {@code PricingServer [port]} (defaults to 9090)
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9090;
+        PricingServer server = withSampleData(new InetSocketAddress("127.0.0.1", port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                LOG.warn("Error stopping pricing server: " + e.getMessage());
+            }
+        }));
+        System.out.println("Pricing server listening on 127.0.0.1:" + server.start());
+    }
+
+    private record Request(byte op, int requestId, long sessionId, String code) {
+    }
+
+    private static final class Connection {
+        private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        private final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        private final Map<Long, Checkout> sessions = new HashMap<>();
+
+        // Unprocessed input is left behind whenever the output buffer filled up first
+        private boolean hasBacklog() {
+            return in.position() > 0;
+        }
+    }
+}
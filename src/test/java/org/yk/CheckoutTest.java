@@ -11,6 +11,7 @@ import org.yk.price.PricingRule;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.yk.CheckoutTest.PredefinedCartItems.PANTS;
 import static org.yk.CheckoutTest.PredefinedCartItems.TSHIRT;
@@ -199,4 +200,102 @@ public class CheckoutTest {
         LOG.info("Example 5 using extra pricing rules ended");
     }
 
+    @Test
+    public void usingAllExamplesPredefinedCartItems_thenScanThemAsBatchInCheckout_totalMustMatchSequentialScan() {
+        for (List<CartItem> exampleCartItems : checkoutItemList) {
+            final Checkout sequentialCheckout = new Checkout(defaultPricingRules);
+            copyOf(exampleCartItems).forEach(sequentialCheckout::scan);
+            final Checkout batchCheckout = new Checkout(defaultPricingRules);
+            int scanned = batchCheckout.scan(copyOf(exampleCartItems));
+            MatcherAssert.assertThat("Batch scan: " + exampleCartItems.size() + " cart items expected to be scanned; scanned = " + scanned,
+                    scanned == exampleCartItems.size());
+            MatcherAssert.assertThat("Batch scan: cart total expected " + sequentialCheckout.getCartTotal()
+                            + "; cart total = " + batchCheckout.getCartTotal(),
+                    batchCheckout.getCartTotal().compareTo(sequentialCheckout.getCartTotal()) == 0);
+        }
+    }
+
+    @Test
+    public void usingDiscountedVouchers_thenVoidOneInCheckout_remainingCartItemsMustBeRepriced() {
+        final Checkout checkout = new Checkout(extraPricingRules);
+        List.of(VOUCHER.getCartItem(), VOUCHER.getCartItem(), PANTS.getCartItem()).forEach(checkout::scan);
+        MatcherAssert.assertThat("Void: VOUCHER expected to be found", checkout.voidItem("VOUCHER"));
+
+        // A single VOUCHER left no longer qualifies for 3-for-1
+        final Checkout referenceCheckout = new Checkout(extraPricingRules);
+        List.of(VOUCHER.getCartItem(), PANTS.getCartItem()).forEach(referenceCheckout::scan);
+        MatcherAssert.assertThat("Void: cart total expected 12.50€; cart total = " + checkout.getCartTotal(),
+                checkout.getCartTotal().compareTo(12.50) == 0
+                        && checkout.getCartTotal().compareTo(referenceCheckout.getCartTotal()) == 0);
+    }
+
+    @Test
+    public void usingExample1PredefinedCartItems_thenVoidUnknownCodeInCheckout_cartMustBeUnchanged() {
+        final Checkout checkout = new Checkout(defaultPricingRules);
+        copyOf(checkoutItemList.get(0)).forEach(checkout::scan);
+        Double cartTotal = checkout.getCartTotal();
+        MatcherAssert.assertThat("Void: unknown code expected not to be found", !checkout.voidItem("UNKNOWN"));
+        MatcherAssert.assertThat("Void: 3 cart items expected; cart items = " + checkout.getCartItems().size(),
+                checkout.getCartItems().size() == 3);
+        MatcherAssert.assertThat("Void: cart total expected " + cartTotal + "; cart total = " + checkout.getCartTotal(),
+                checkout.getCartTotal().compareTo(cartTotal) == 0);
+    }
+
+    @Test
+    public void usingCartItemsScannedUnderDifferentPricingRules_thenVoidFailsOnReplay_cartMustBeLeftUnchanged() {
+        // Up to 6 VOUCHER items, 2-for-1 fails to evaluate from the fifth VOUCHER onwards
+        final PricingRule twoForOneUpToSixVouchers = new PricingRule(
+                List.of(
+                        new PricingRule.PriceRuleCondition.Builder<String>()
+                                .addConditionType(PricingRule.PriceRuleCondition.PriceRuleConditionType.CART_ITEM_CODE)
+                                .addConditionValue("VOUCHER")
+                                .build(),
+                        new PricingRule.PriceRuleCondition.Builder<Integer>()
+                                .addConditionOperator(PricingRule.PriceRuleCondition.PriceRuleConditionOperator.LESS_THAN)
+                                .addConditionType(PricingRule.PriceRuleCondition.PriceRuleConditionType.CART_ITEM_QUANTITY_TOTAL)
+                                .addConditionValue(7)
+                                .build(),
+                        new PricingRule.PriceRuleCondition.Builder<Integer>()
+                                .addConditionType(PricingRule.PriceRuleCondition.PriceRuleConditionType.CART_ITEM_X_QUANTITY)
+                                .addConditionValue(2)
+                                .build()),
+                List.of(
+                        new PricingRule.PriceRuleAction.Builder<Integer>()
+                                .addActionType(PricingRule.PriceRuleAction.PriceRuleActionType.CART_ITEM_DISCOUNT_PERCENT)
+                                .addActionValue(100)
+                                .build()));
+        final AtomicReference<List<PricingRule>> activePricingRules = new AtomicReference<>(List.of());
+        final Checkout checkout = new Checkout(activePricingRules::get);
+        for (int i = 0; i < 7; i++) {
+            checkout.scan(VOUCHER.getCartItem());
+        }
+        activePricingRules.set(List.of(twoForOneUpToSixVouchers));
+        checkout.scan(PANTS.getCartItem());
+        Double cartTotal = checkout.getCartTotal();
+
+        // Replaying PANTS with 6 VOUCHER items ahead of it fails
+        try {
+            checkout.voidItem("VOUCHER");
+            MatcherAssert.assertThat("Void: pricing failure expected", false);
+        } catch (NextailException e) {
+            LOG.info("Void failed as expected: " + e.getMessage());
+        }
+        MatcherAssert.assertThat("Void: 8 cart items expected; cart items = " + checkout.getCartItems().size(),
+                checkout.getCartItems().size() == 8);
+        MatcherAssert.assertThat("Void: cart total expected " + cartTotal + "; cart total = " + checkout.getCartTotal(),
+                checkout.getCartTotal().compareTo(cartTotal) == 0);
+
+        // Every cart item must still be replayed with the pricing rules it was scanned under
+        MatcherAssert.assertThat("Void: PANTS expected to be found", checkout.voidItem("PANTS"));
+        MatcherAssert.assertThat("Void: cart total expected 35.00€; cart total = " + checkout.getCartTotal(),
+                checkout.getCartTotal().compareTo(35.00) == 0);
+    }
+
+    // Cart items carry their discount, so every checkout needs its own instances
+    private static List<CartItem> copyOf(List<CartItem> cartItems) {
+        return cartItems.stream()
+                .map(ci -> new CartItem(ci.getCode(), ci.getName(), ci.getPrice(), ci.getCurrency()))
+                .toList();
+    }
+
 }
@@ -0,0 +1,38 @@
+package org.yk;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Clock only moving when told to, so rule activation is deterministic
+ */
+class ManualClock extends Clock {
+    private Instant instant;
+
+    ManualClock(Instant instant) {
+        this.instant = instant;
+    }
+
+    void advance(Duration duration) {
+        instant = instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        // The zone plays no part in rule activation
+        return this;
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
@@ -0,0 +1,136 @@
+package org.yk;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yk.cart.CartItem;
+import org.yk.checkout.Checkout;
+import org.yk.price.PricingRule;
+import org.yk.price.PricingRuleScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+public class PricingRuleSchedulerTest {
+    private static final Logger LOG = LoggerFactory.getLogger(PricingRuleSchedulerTest.class);
+    private static final Instant OPENING_TIME = Instant.parse("2024-06-21T09:00:00Z");
+
+    static PricingRule twoForOneVoucher(Instant effectiveFrom, Instant effectiveUntil) {
+        return new PricingRule(
+                List.of(
+                        new PricingRule.PriceRuleCondition.Builder<String>()
+                                .addConditionType(PricingRule.PriceRuleCondition.PriceRuleConditionType.CART_ITEM_CODE)
+                                .addConditionValue("VOUCHER")
+                                .build(),
+                        new PricingRule.PriceRuleCondition.Builder<Integer>()
+                                .addConditionType(PricingRule.PriceRuleCondition.PriceRuleConditionType.CART_ITEM_X_QUANTITY)
+                                .addConditionValue(2)
+                                .build()),
+                List.of(
+                        new PricingRule.PriceRuleAction.Builder<Integer>()
+                                .addActionType(PricingRule.PriceRuleAction.PriceRuleActionType.CART_ITEM_DISCOUNT_PERCENT)
+                                .addActionValue(100)
+                                .build()),
+                effectiveFrom, effectiveUntil);
+    }
+
+    private static Double scanTwoVouchers(PricingRuleScheduler scheduler) {
+        Checkout checkout = new Checkout(scheduler);
+        checkout.scan(new CartItem("VOUCHER", "Gift Card", 5.00, "€"));
+        checkout.scan(new CartItem("VOUCHER", "Gift Card", 5.00, "€"));
+        return checkout.getCartTotal();
+    }
+
+    @Test
+    public void usingHappyHourPricingRule_thenAdvanceClockThroughItsWindow_ruleMustOnlyApplyWithinWindow() {
+        LOG.info("Happy hour pricing rule began");
+        ManualClock clock = new ManualClock(OPENING_TIME);
+        PricingRuleScheduler scheduler = new PricingRuleScheduler(clock, List.of(
+                twoForOneVoucher(OPENING_TIME.plus(Duration.ofHours(8)), OPENING_TIME.plus(Duration.ofHours(9)))));
+
+        MatcherAssert.assertThat("Before happy hour: cart total expected 10.00€",
+                scanTwoVouchers(scheduler).compareTo(10.00) == 0);
+
+        clock.advance(Duration.ofHours(8).minusMillis(1));
+        scheduler.advance();
+        MatcherAssert.assertThat("Right before happy hour: no active pricing rule expected", scheduler.get().isEmpty());
+
+        clock.advance(Duration.ofMillis(1));
+        scheduler.advance();
+        MatcherAssert.assertThat("During happy hour: cart total expected 5.00€",
+                scanTwoVouchers(scheduler).compareTo(5.00) == 0);
+
+        clock.advance(Duration.ofHours(1));
+        scheduler.advance();
+        MatcherAssert.assertThat("After happy hour: cart total expected 10.00€",
+                scanTwoVouchers(scheduler).compareTo(10.00) == 0);
+        LOG.info("Happy hour pricing rule ended");
+    }
+
+    @Test
+    public void usingHappyHourPricingRule_thenVoidCartItemsAcrossItsBoundaries_cartItemsMustKeepTheirScanTimePricing() {
+        ManualClock clock = new ManualClock(OPENING_TIME);
+        PricingRuleScheduler scheduler = new PricingRuleScheduler(clock, List.of(
+                twoForOneVoucher(OPENING_TIME.plus(Duration.ofHours(1)), OPENING_TIME.plus(Duration.ofHours(2)))));
+
+        // Scanned before happy hour, so the rule must not apply on replay once it becomes active
+        Checkout beforeHappyHour = new Checkout(scheduler);
+        beforeHappyHour.scan(new CartItem("VOUCHER", "Gift Card", 5.00, "€"));
+        beforeHappyHour.scan(new CartItem("VOUCHER", "Gift Card", 5.00, "€"));
+        beforeHappyHour.scan(new CartItem("PANTS", "Summer Pants", 7.50, "€"));
+
+        clock.advance(Duration.ofHours(1));
+        scheduler.advance();
+        Checkout duringHappyHour = new Checkout(scheduler);
+        duringHappyHour.scan(new CartItem("VOUCHER", "Gift Card", 5.00, "€"));
+        duringHappyHour.scan(new CartItem("VOUCHER", "Gift Card", 5.00, "€"));
+        duringHappyHour.scan(new CartItem("PANTS", "Summer Pants", 7.50, "€"));
+        MatcherAssert.assertThat("During happy hour: cart total expected 12.50€; cart total = " + duringHappyHour.getCartTotal(),
+                duringHappyHour.getCartTotal().compareTo(12.50) == 0);
+
+        beforeHappyHour.voidItem("PANTS");
+        MatcherAssert.assertThat("Void during happy hour: cart total expected 10.00€; cart total = " + beforeHappyHour.getCartTotal(),
+                beforeHappyHour.getCartTotal().compareTo(10.00) == 0);
+
+        // Scanned during happy hour, so the discount must survive a replay once the rule is retired
+        clock.advance(Duration.ofHours(1));
+        scheduler.advance();
+        duringHappyHour.voidItem("PANTS");
+        MatcherAssert.assertThat("Void after happy hour: cart total expected 5.00€; cart total = " + duringHappyHour.getCartTotal(),
+                duringHappyHour.getCartTotal().compareTo(5.00) == 0);
+    }
+
+    @Test
+    public void usingPricingRuleScheduler_thenAddRulesAndJumpClockPastWholeWheel_activeRulesMustMatchClock() {
+        ManualClock clock = new ManualClock(OPENING_TIME);
+        PricingRuleScheduler scheduler = new PricingRuleScheduler(clock, Duration.ofMinutes(1), 8, List.of());
+
+        // Already active when added, so it must be published without waiting for a tick
+        scheduler.addPricingRule(twoForOneVoucher(null, OPENING_TIME.plus(Duration.ofDays(2))));
+        scheduler.addPricingRule(twoForOneVoucher(OPENING_TIME.plus(Duration.ofDays(1)), null));
+        MatcherAssert.assertThat("1 active pricing rule expected; got " + scheduler.get().size(),
+                scheduler.get().size() == 1);
+
+        clock.advance(Duration.ofDays(1));
+        scheduler.advance();
+        MatcherAssert.assertThat("2 active pricing rules expected; got " + scheduler.get().size(),
+                scheduler.get().size() == 2);
+
+        clock.advance(Duration.ofDays(1));
+        scheduler.advance();
+        MatcherAssert.assertThat("1 active pricing rule expected; got " + scheduler.get().size(),
+                scheduler.get().size() == 1);
+    }
+
+    @Test(expected = NextailException.class)
+    public void usingHappyHourPricingRule_thenPassItToCheckoutAsFixedList_mustFail() {
+        new Checkout(List.of(twoForOneVoucher(OPENING_TIME, OPENING_TIME.plus(Duration.ofHours(1)))));
+    }
+
+    @Test(expected = NextailException.class)
+    public void usingPricingRuleWindowEndingBeforeItStarts_thenCreateIt_mustFail() {
+        twoForOneVoucher(OPENING_TIME, OPENING_TIME.minus(Duration.ofHours(1)));
+    }
+}
@@ -0,0 +1,278 @@
+package org.yk;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yk.cart.CartItem;
+import org.yk.price.PricingRuleScheduler;
+import org.yk.server.PricingProtocol;
+import org.yk.server.PricingServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public class PricingServerTest {
+    private static final Logger LOG = LoggerFactory.getLogger(PricingServerTest.class);
+    private static PricingServer pricingServer;
+    private static int port;
+
+    @BeforeClass
+    public static void init() throws IOException {
+        LOG.info("Starting loopback pricing server");
+        pricingServer = PricingServer.withSampleData(new InetSocketAddress("127.0.0.1", 0));
+        port = pricingServer.start();
+    }
+
+    @AfterClass
+    public static void shutdown() throws IOException {
+        pricingServer.close();
+    }
+
+    @Test
+    public void usingPredefinedCartItems_thenPipelineScansToPricingServer_totalMustMatchExpectedValue() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port))) {
+            long sessionId = openSession(channel);
+
+            ByteBuffer out = ByteBuffer.allocate(1024);
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, 2, sessionId, "PANTS");
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, 3, sessionId, "TSHIRT");
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, 4, sessionId, "PANTS");
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_TOTAL, 5, sessionId, null);
+            write(channel, out);
+
+            for (int requestId = 2; requestId <= 4; requestId++) {
+                ByteBuffer response = readResponse(channel, requestId, PricingProtocol.STATUS_OK);
+                MatcherAssert.assertThat("Cart size expected " + (requestId - 1), response.getInt() == requestId - 1);
+            }
+            double total = readResponse(channel, 5, PricingProtocol.STATUS_OK).getDouble();
+            MatcherAssert.assertThat("Cart total amount expected 35.00€; cart total = " + total,
+                    Double.compare(total, 35.00) == 0);
+        }
+    }
+
+    @Test
+    public void usingPricingServerSession_thenVoidScannedItem_totalMustExcludeVoidedItem() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port))) {
+            long sessionId = openSession(channel);
+
+            ByteBuffer out = ByteBuffer.allocate(1024);
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, 2, sessionId, "PANTS");
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, 3, sessionId, "UNKNOWN");
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, 4, sessionId, "TSHIRT");
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_VOID, 5, sessionId, "TSHIRT");
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_CLOSE, 6, sessionId, null);
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_TOTAL, 7, sessionId, null);
+            write(channel, out);
+
+            readResponse(channel, 2, PricingProtocol.STATUS_OK);
+            readResponse(channel, 3, PricingProtocol.STATUS_ERROR);
+            readResponse(channel, 4, PricingProtocol.STATUS_OK);
+            MatcherAssert.assertThat("Cart size after void expected 1",
+                    readResponse(channel, 5, PricingProtocol.STATUS_OK).getInt() == 1);
+            double total = readResponse(channel, 6, PricingProtocol.STATUS_OK).getDouble();
+            MatcherAssert.assertThat("Cart total amount expected 7.50€; cart total = " + total,
+                    Double.compare(total, 7.50) == 0);
+            // Session must be gone once closed
+            readResponse(channel, 7, PricingProtocol.STATUS_ERROR);
+        }
+    }
+
+    @Test
+    public void usingBatchWithFailingScan_thenPipelineItToPricingServer_onlyFailingScanMustBeRejected() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port))) {
+            // The 2-for-1 VOUCHER rule currently fails to evaluate on the fifth VOUCHER
+            long sessionId = openSession(channel);
+            ByteBuffer out = ByteBuffer.allocate(1024);
+            for (int requestId = 2; requestId <= 6; requestId++) {
+                PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, requestId, sessionId, "VOUCHER");
+            }
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, 7, sessionId, "PANTS");
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_VOID, 8, sessionId, "PANTS");
+            PricingProtocol.writeRequest(out, PricingProtocol.OP_TOTAL, 9, sessionId, null);
+            write(channel, out);
+
+            for (int requestId = 2; requestId <= 5; requestId++) {
+                ByteBuffer response = readResponse(channel, requestId, PricingProtocol.STATUS_OK);
+                MatcherAssert.assertThat("Cart size expected " + (requestId - 1), response.getInt() == requestId - 1);
+            }
+            readResponse(channel, 6, PricingProtocol.STATUS_ERROR);
+            MatcherAssert.assertThat("Cart size expected 5 after the failed scan",
+                    readResponse(channel, 7, PricingProtocol.STATUS_OK).getInt() == 5);
+            MatcherAssert.assertThat("Cart size expected 4 after void",
+                    readResponse(channel, 8, PricingProtocol.STATUS_OK).getInt() == 4);
+            double total = readResponse(channel, 9, PricingProtocol.STATUS_OK).getDouble();
+
+            // Same total as scanning the 4 accepted VOUCHER items one by one
+            long referenceSessionId = openSession(channel);
+            out.clear();
+            for (int requestId = 2; requestId <= 5; requestId++) {
+                PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, requestId, referenceSessionId, "VOUCHER");
+                PricingProtocol.writeRequest(out, PricingProtocol.OP_TOTAL, 10 + requestId, referenceSessionId, null);
+            }
+            write(channel, out);
+            double referenceTotal = 0.0;
+            for (int requestId = 2; requestId <= 5; requestId++) {
+                readResponse(channel, requestId, PricingProtocol.STATUS_OK);
+                referenceTotal = readResponse(channel, 10 + requestId, PricingProtocol.STATUS_OK).getDouble();
+            }
+            MatcherAssert.assertThat("Cart total expected " + referenceTotal + "; cart total = " + total,
+                    Double.compare(total, referenceTotal) == 0);
+        }
+    }
+
+    @Test
+    public void usingMalformedFrames_thenSendThemToPricingServer_onlyOffendingConnectionMustBeDropped() throws IOException {
+        // SCAN frame too short to hold a cart item code
+        ByteBuffer missingCode = ByteBuffer.allocate(64);
+        missingCode.putInt(PricingProtocol.REQUEST_HEADER_SIZE).put(PricingProtocol.OP_SCAN).putInt(2).putLong(1);
+        // SCAN frame whose code length overruns the frame into the pipelined TOTAL behind it
+        ByteBuffer overrunningCode = ByteBuffer.allocate(64);
+        overrunningCode.putInt(PricingProtocol.REQUEST_HEADER_SIZE + Short.BYTES).put(PricingProtocol.OP_SCAN)
+                .putInt(2).putLong(1).putShort((short) 10);
+        PricingProtocol.writeRequest(overrunningCode, PricingProtocol.OP_TOTAL, 3, 1, null);
+
+        for (ByteBuffer malformed : List.of(missingCode, overrunningCode)) {
+            try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port))) {
+                write(channel, malformed);
+                MatcherAssert.assertThat("Malformed frame connection expected to be dropped", isDropped(channel));
+            }
+            // The server must keep serving other tills
+            try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port))) {
+                openSession(channel);
+            }
+        }
+    }
+
+    @Test
+    public void usingHappyHourPricingRuleScheduler_thenOpenSessionsThroughItsWindow_ruleMustOnlyApplyWithinWindow() throws IOException {
+        Instant openingTime = Instant.parse("2024-06-21T09:00:00Z");
+        ManualClock clock = new ManualClock(openingTime);
+        PricingRuleScheduler scheduler = new PricingRuleScheduler(clock, List.of(
+                PricingRuleSchedulerTest.twoForOneVoucher(openingTime.plus(Duration.ofHours(1)), openingTime.plus(Duration.ofHours(2)))));
+        PricingServer happyHourServer = new PricingServer(new InetSocketAddress("127.0.0.1", 0),
+                Map.of("VOUCHER", new CartItem("VOUCHER", "Gift Card", 5.00, "€")), scheduler);
+        int happyHourPort = happyHourServer.start();
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", happyHourPort))) {
+            double total = scanTwoVouchers(channel);
+            MatcherAssert.assertThat("Before happy hour: cart total expected 10.00€; cart total = " + total,
+                    Double.compare(total, 10.00) == 0);
+
+            clock.advance(Duration.ofHours(1));
+            scheduler.advance();
+            total = scanTwoVouchers(channel);
+            MatcherAssert.assertThat("During happy hour: cart total expected 5.00€; cart total = " + total,
+                    Double.compare(total, 5.00) == 0);
+
+            clock.advance(Duration.ofHours(1));
+            scheduler.advance();
+            total = scanTwoVouchers(channel);
+            MatcherAssert.assertThat("After happy hour: cart total expected 10.00€; cart total = " + total,
+                    Double.compare(total, 10.00) == 0);
+        } finally {
+            happyHourServer.close();
+        }
+    }
+
+    @Test
+    public void usingSessionCap_thenOpenSessionsAcrossConnections_sessionsMustBeCappedAndDiscardedWithTheirConnection() throws IOException {
+        PricingServer cappedServer = new PricingServer(new InetSocketAddress("127.0.0.1", 0),
+                Map.of("PANTS", new CartItem("PANTS", "Summer Pants", 7.50, "€")), List::of, 2);
+        int cappedPort = cappedServer.start();
+        try {
+            long abandonedSessionId;
+            try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", cappedPort))) {
+                abandonedSessionId = openSession(channel);
+                openSession(channel);
+
+                ByteBuffer out = ByteBuffer.allocate(64);
+                PricingProtocol.writeRequest(out, PricingProtocol.OP_OPEN, 2, 0, null);
+                write(channel, out);
+                readResponse(channel, 2, PricingProtocol.STATUS_ERROR);
+            }
+
+            // Closing the connection without closing its sessions must free them
+            try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", cappedPort))) {
+                long sessionId = openSession(channel);
+                openSession(channel);
+
+                ByteBuffer out = ByteBuffer.allocate(64);
+                PricingProtocol.writeRequest(out, PricingProtocol.OP_TOTAL, 2, abandonedSessionId, null);
+                PricingProtocol.writeRequest(out, PricingProtocol.OP_CLOSE, 3, sessionId, null);
+                PricingProtocol.writeRequest(out, PricingProtocol.OP_OPEN, 4, 0, null);
+                write(channel, out);
+                readResponse(channel, 2, PricingProtocol.STATUS_ERROR);
+                readResponse(channel, 3, PricingProtocol.STATUS_OK);
+                readResponse(channel, 4, PricingProtocol.STATUS_OK);
+            }
+        } finally {
+            cappedServer.close();
+        }
+    }
+
+    private static double scanTwoVouchers(SocketChannel channel) throws IOException {
+        long sessionId = openSession(channel);
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, 2, sessionId, "VOUCHER");
+        PricingProtocol.writeRequest(out, PricingProtocol.OP_SCAN, 3, sessionId, "VOUCHER");
+        PricingProtocol.writeRequest(out, PricingProtocol.OP_CLOSE, 4, sessionId, null);
+        write(channel, out);
+
+        readResponse(channel, 2, PricingProtocol.STATUS_OK);
+        readResponse(channel, 3, PricingProtocol.STATUS_OK);
+        return readResponse(channel, 4, PricingProtocol.STATUS_OK).getDouble();
+    }
+
+    private static boolean isDropped(SocketChannel channel) {
+        try {
+            return channel.read(ByteBuffer.allocate(64)) < 0;
+        } catch (IOException e) {
+            // Connection reset
+            return true;
+        }
+    }
+
+    private static long openSession(SocketChannel channel) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(64);
+        PricingProtocol.writeRequest(out, PricingProtocol.OP_OPEN, 1, 0, null);
+        write(channel, out);
+        return readResponse(channel, 1, PricingProtocol.STATUS_OK).getLong();
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    private static ByteBuffer readResponse(SocketChannel channel, int expectedRequestId, byte expectedStatus) throws IOException {
+        ByteBuffer lengthPrefix = readFully(channel, PricingProtocol.LENGTH_PREFIX_SIZE);
+        ByteBuffer response = readFully(channel, lengthPrefix.getInt());
+        byte status = response.get();
+        int requestId = response.getInt();
+        MatcherAssert.assertThat("Response expected for request " + expectedRequestId + "; got " + requestId,
+                requestId == expectedRequestId);
+        MatcherAssert.assertThat("Status " + expectedStatus + " expected for request " + requestId + "; got " + status,
+                status == expectedStatus);
+        return response;
+    }
+
+    private static ByteBuffer readFully(SocketChannel channel, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Pricing server closed the connection");
+            }
+        }
+        return buffer.flip();
+    }
+}